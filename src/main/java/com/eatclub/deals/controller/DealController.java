@@ -2,12 +2,15 @@ package com.eatclub.deals.controller;
 
 import com.eatclub.deals.dto.DealsListResponse;
 import com.eatclub.deals.dto.PeakTimeResponse;
+import com.eatclub.deals.model.DataSnapshot;
 import com.eatclub.deals.service.DealService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalTime;
+
 // Controller for deals API endpoints
 @RestController
 @RequestMapping("/api/deals")
@@ -15,38 +18,58 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class DealController {
 
+    // response header with the data version used, clients can send it back to stay on that version
+    public static final String DATA_VERSION_HEADER = "X-Data-Version";
+    public static final String MIN_DATA_VERSION_HEADER = "X-Data-Min-Version";
+
     private final DealService dealService; // injected by Spring via @RequiredArgsConstructor
 
     // GET /api/deals?timeOfDay=3:00pm - returns active deals at given time
     @GetMapping
     public ResponseEntity<DealsListResponse> getActiveDeals(
-            @RequestParam String timeOfDay) {
+            @RequestParam String timeOfDay,
+            @RequestHeader(value = DATA_VERSION_HEADER, required = false) String version,
+            @RequestHeader(value = MIN_DATA_VERSION_HEADER, required = false) String minVersion) {
 
         long startTime = System.currentTimeMillis();
         log.info("Received request for active deals at: {}", timeOfDay);
 
-        DealsListResponse response = dealService.getActiveDeals(timeOfDay);
+        // validate the input before touching the data so a bad time is always a 400
+        LocalTime queryTime = dealService.parseTimeOfDay(timeOfDay);
+        DataSnapshot snapshot = dealService.resolveSnapshot(emptyToNull(version), emptyToNull(minVersion));
+        DealsListResponse response = dealService.getActiveDeals(queryTime, snapshot);
 
         // Log response time for monitoring
         long responseTime = System.currentTimeMillis() - startTime;
         log.info("GET /api/deals?timeOfDay={} - Response time: {} ms", timeOfDay, responseTime);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .header(DATA_VERSION_HEADER, snapshot.getVersion())
+                .body(response);
     }
 
     // GET /api/deals/peak-time - returns time window with most deals
     @GetMapping("/peak-time")
-    public ResponseEntity<PeakTimeResponse> getPeakTime() {
+    public ResponseEntity<PeakTimeResponse> getPeakTime(
+            @RequestHeader(value = DATA_VERSION_HEADER, required = false) String version,
+            @RequestHeader(value = MIN_DATA_VERSION_HEADER, required = false) String minVersion) {
 
         long startTime = System.currentTimeMillis();
         log.info("Received request for peak time calculation");
 
-        PeakTimeResponse response = dealService.getPeakTime();
+        DataSnapshot snapshot = dealService.resolveSnapshot(emptyToNull(version), emptyToNull(minVersion));
+        PeakTimeResponse response = dealService.getPeakTime(snapshot);
 
         // Log response time for monitoring
         long responseTime = System.currentTimeMillis() - startTime;
         log.info("GET /api/deals/peak-time - Response time: {} ms", responseTime);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .header(DATA_VERSION_HEADER, snapshot.getVersion())
+                .body(response);
+    }
+
+    private static String emptyToNull(String value) {
+        return (value == null || value.isBlank()) ? null : value.trim();
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.eatclub.deals.exception;
+
+import lombok.Getter;
+
+@Getter
+public class DataVersionUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String currentVersion; // returned to the client so it can re-pin
+
+    public DataVersionUnavailableException(String message, String currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+}
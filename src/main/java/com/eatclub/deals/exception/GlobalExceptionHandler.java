@@ -1,5 +1,6 @@
 package com.eatclub.deals.exception;
 
+import com.eatclub.deals.controller.DealController;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -37,6 +38,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
     }
 
+    // client asked for a data version this instance cannot serve
+    @ExceptionHandler(DataVersionUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleDataVersionUnavailable(DataVersionUnavailableException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now().toString());
+        error.put("status", HttpStatus.PRECONDITION_FAILED.value());
+        error.put("error", "Precondition Failed");
+        error.put("message", ex.getMessage());
+        
+        // current version in the header so the client can re-pin without parsing the message
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .header(DealController.DATA_VERSION_HEADER, ex.getCurrentVersion())
+                .body(error);
+    }
+
     // catch-all for anything unexpected
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
@@ -0,0 +1,17 @@
+package com.eatclub.deals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// one version of the restaurant data, also the file format in the shared snapshot dir
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataSnapshot {
+    private String version; // <first fetched at>-<content hash>, see DealService.versionTime
+    private long fetchedAt; // when it was last fetched from the external API (epoch millis)
+    private List<Restaurant> restaurants;
+}
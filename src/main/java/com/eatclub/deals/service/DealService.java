@@ -3,12 +3,17 @@ package com.eatclub.deals.service;
 import com.eatclub.deals.dto.DealResponse;
 import com.eatclub.deals.dto.DealsListResponse;
 import com.eatclub.deals.dto.PeakTimeResponse;
+import com.eatclub.deals.exception.DataVersionUnavailableException;
 import com.eatclub.deals.exception.ExternalApiException;
 import com.eatclub.deals.exception.InvalidTimeFormatException;
+import com.eatclub.deals.model.DataSnapshot;
 import com.eatclub.deals.model.Deal;
 import com.eatclub.deals.model.Restaurant;
 import com.eatclub.deals.model.RestaurantDataResponse;
 import com.eatclub.deals.util.TimeUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,9 +21,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -26,49 +36,255 @@ import java.util.List;
 public class DealService {
 
     private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final SharedSnapshotStore sharedSnapshotStore;
 
     @Value("${eatclub.api.url:https://eccdn.com.au/misc/challengedata.json}")
     private String apiUrl; // loaded from application.properties
 
     // Cache to store API response and avoid repeated calls
-    private List<Restaurant> cachedData = null;
-    private long cacheTimestamp = 0;
+    private volatile DataSnapshot cachedSnapshot = null;
+    private long lastUpstreamFetch = 0;
     private static final long CACHE_TTL_MS = 60000; // 1 minute
+    private static final long MIN_FORCED_REFRESH_MS = 5000; // limits refetches asked for by clients
+    private static final long MAX_CLOCK_SKEW_MS = 5000; // between replicas, for versions from the "future"
+    private static final long LEASE_RETRY_MS = 1000; // how often to retry the refresh lease while serving stale data
+    private long leaseDeniedAt = 0;
+
+    // Recently served snapshots by content hash, oldest first, so clients pinned to an exact version keep it
+    private static final int MAX_RECENT_SNAPSHOTS = 16;
+    private final Map<String, DataSnapshot> recentSnapshots = new LinkedHashMap<>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DataSnapshot> eldest) {
+            return size() > MAX_RECENT_SNAPSHOTS;
+        }
+    };
 
     // Fetches data from external API with caching
     public List<Restaurant> fetchRestaurantData() {
+        return currentSnapshot().getRestaurants();
+    }
+
+    // Returns the cached snapshot, adopting a newer shared one or refetching when expired
+    public DataSnapshot currentSnapshot() {
         long currentTime = System.currentTimeMillis();
 
-        // Return cached data if still valid
-        if (cachedData != null && (currentTime - cacheTimestamp) < CACHE_TTL_MS) {
-            log.info("Returning cached data (age: {} ms)", currentTime - cacheTimestamp);
-            return cachedData;
+        // fast path without locking, reads the shared pointer file at most once per poll interval
+        DataSnapshot snapshot = cachedSnapshot;
+        if (snapshot != null && (currentTime - snapshot.getFetchedAt()) < CACHE_TTL_MS
+                && !sharedSnapshotStore.hasChanged()) {
+            log.info("Returning cached data version {} (age: {} ms)",
+                    snapshot.getVersion(), currentTime - snapshot.getFetchedAt());
+            return snapshot;
+        }
+
+        synchronized (this) {
+            // another replica holds the refresh lease, serve the expired data until it shares the new one
+            snapshot = cachedSnapshot;
+            if (snapshot != null && !isFresh(snapshot) && currentTime - leaseDeniedAt < LEASE_RETRY_MS
+                    && !sharedSnapshotStore.hasChanged()) {
+                return snapshot;
+            }
+
+            adoptSharedSnapshot();
+
+            // another thread or replica may have refreshed while we waited
+            snapshot = cachedSnapshot;
+            if (isFresh(snapshot)) {
+                return snapshot;
+            }
+
+            // only one replica fetches when the shared snapshot expires, without any data we fetch anyway
+            boolean leased = sharedSnapshotStore.tryAcquireRefreshLease();
+            if (!leased && snapshot != null) {
+                leaseDeniedAt = currentTime;
+                log.info("Another replica is refreshing, returning expired data version {}", snapshot.getVersion());
+                return snapshot;
+            }
+            try {
+                if (leased) {
+                    // the previous lease holder may have shared its snapshot just before we got the lease
+                    adoptSharedSnapshot();
+                    if (isFresh(cachedSnapshot)) {
+                        return cachedSnapshot;
+                    }
+                }
+                return refreshFromUpstream();
+            } finally {
+                if (leased) {
+                    sharedSnapshotStore.releaseRefreshLease();
+                }
+            }
+        }
+    }
+
+    private boolean isFresh(DataSnapshot snapshot) {
+        return snapshot != null && (System.currentTimeMillis() - snapshot.getFetchedAt()) < CACHE_TTL_MS;
+    }
+
+    // Returns a snapshot matching the exact and/or minimum version the client asked for.
+    // Both are optional, a minimum version is satisfied by it or any version first fetched after it.
+    public DataSnapshot resolveSnapshot(String exactVersion, String minVersion) {
+        DataSnapshot snapshot = currentSnapshot();
+        DataSnapshot match = findSnapshot(snapshot, exactVersion, minVersion);
+        if (match != null) {
+            return match;
+        }
+
+        // client saw a newer version on another replica, try to catch up once
+        String requested = (exactVersion != null) ? exactVersion : minVersion;
+        if (couldBeNewer(requested, snapshot)) {
+            synchronized (this) {
+                adoptSharedSnapshot();
+                snapshot = cachedSnapshot;
+                if (findSnapshot(snapshot, exactVersion, minVersion) == null && couldBeNewer(requested, snapshot)
+                        && System.currentTimeMillis() - lastUpstreamFetch >= MIN_FORCED_REFRESH_MS
+                        && sharedSnapshotStore.tryAcquireRefreshLease()) {
+                    try {
+                        snapshot = refreshFromUpstream();
+                    } catch (ExternalApiException e) {
+                        // we still have valid data, the client gets 412 with the current version instead of 503
+                        log.warn("Catch-up refresh for data version {} failed: {}", requested, e.getMessage());
+                    } finally {
+                        sharedSnapshotStore.releaseRefreshLease();
+                    }
+                }
+            }
+            match = findSnapshot(snapshot, exactVersion, minVersion);
+            if (match != null) {
+                return match;
+            }
         }
 
-        // Fetch fresh data from API
+        throw new DataVersionUnavailableException("Data version " + requested
+                + " is not available, current version is " + snapshot.getVersion(), snapshot.getVersion());
+    }
+
+    // Versions look like <first fetched at millis>-<content hash>, so they can be ordered by time
+    static long versionTime(String version) {
+        int separator = (version != null) ? version.indexOf('-') : -1;
+        if (separator <= 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(version.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static String versionHash(String version) {
+        return (versionTime(version) >= 0) ? version.substring(version.indexOf('-') + 1) : null;
+    }
+
+    // Matches on the content hash, replicas that first fetched the same data at different times
+    // have different version strings for it
+    private DataSnapshot findSnapshot(DataSnapshot current, String exactVersion, String minVersion) {
+        DataSnapshot candidate = current;
+        if (exactVersion != null) {
+            synchronized (recentSnapshots) {
+                candidate = recentSnapshots.get(versionHash(exactVersion));
+            }
+            if (candidate == null) {
+                return null;
+            }
+        }
+        if (minVersion != null) {
+            long minTime = versionTime(minVersion);
+            if (minTime < 0) {
+                return null;
+            }
+            if (versionTime(candidate.getVersion()) < minTime
+                    && !versionHash(minVersion).equals(versionHash(candidate.getVersion()))) {
+                return null;
+            }
+        }
+        return candidate;
+    }
+
+    // Only a version fetched after our last upstream check can be newer than what we have.
+    // Old, unknown or made up versions never cause an upstream fetch.
+    private boolean couldBeNewer(String version, DataSnapshot current) {
+        long time = versionTime(version);
+        return time > current.getFetchedAt() && time <= System.currentTimeMillis() + MAX_CLOCK_SKEW_MS;
+    }
+
+    // Switches to the shared snapshot if another replica published a newer one
+    private void adoptSharedSnapshot() {
+        DataSnapshot shared = sharedSnapshotStore.readIfChanged();
+        if (shared == null || shared.getRestaurants() == null || versionTime(shared.getVersion()) < 0) {
+            return;
+        }
+        DataSnapshot snapshot = cachedSnapshot;
+        if (snapshot == null || shared.getFetchedAt() > snapshot.getFetchedAt()) {
+            log.info("Adopting shared data version {}", shared.getVersion());
+            updateCache(shared);
+        } else {
+            log.debug("Ignoring older shared data version {}", shared.getVersion());
+        }
+    }
+
+    private DataSnapshot refreshFromUpstream() {
         try {
             log.info("Fetching restaurant data from: {}", apiUrl);
+            lastUpstreamFetch = System.currentTimeMillis();
             RestaurantDataResponse response = restTemplate.getForObject(apiUrl, RestaurantDataResponse.class);
 
             if (response == null || response.getRestaurants() == null) {
                 throw new ExternalApiException("No data received from external API");
             }
 
-            // Save to cache
-            cachedData = response.getRestaurants();
-            cacheTimestamp = currentTime;
-
-            log.info("Successfully fetched {} restaurants (cache updated)", response.getRestaurants().size());
-            return cachedData;
+            // unchanged data keeps its version, only the cache age is reset
+            String hash = computeHash(response.getRestaurants());
+            DataSnapshot previous = cachedSnapshot;
+            String version = (previous != null && hash.equals(versionHash(previous.getVersion())))
+                    ? previous.getVersion()
+                    : lastUpstreamFetch + "-" + hash;
+
+            // Save to cache and share with the other replicas
+            DataSnapshot snapshot = new DataSnapshot(version, lastUpstreamFetch, response.getRestaurants());
+            updateCache(snapshot);
+            sharedSnapshotStore.write(snapshot);
+
+            log.info("Successfully fetched {} restaurants (cache updated, version {})",
+                    response.getRestaurants().size(), snapshot.getVersion());
+            return snapshot;
         } catch (RestClientException e) {
             log.error("Failed to fetch restaurant data: {}", e.getMessage());
             throw new ExternalApiException("Failed to fetch restaurant data from external API", e);
         }
     }
 
+    private void updateCache(DataSnapshot snapshot) {
+        synchronized (recentSnapshots) {
+            // re-insert so the latest version is always the newest entry
+            String hash = versionHash(snapshot.getVersion());
+            recentSnapshots.remove(hash);
+            recentSnapshots.put(hash, snapshot);
+        }
+        cachedSnapshot = snapshot;
+    }
+
+    private String computeHash(List<Restaurant> restaurants) {
+        try {
+            byte[] json = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT)
+                    .writeValueAsBytes(restaurants);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to compute data version", e);
+        }
+    }
+
     // Returns all deals active at the given time
     public DealsListResponse getActiveDeals(String timeOfDay) {
-        // parse 3:00pm or 15:00 into LocalTime, throw 400 if invalid
+        return getActiveDeals(parseTimeOfDay(timeOfDay), null);
+    }
+
+    // parse 3:00pm or 15:00 into LocalTime, throw 400 if invalid
+    public LocalTime parseTimeOfDay(String timeOfDay) {
         LocalTime queryTime;
         try {
             queryTime = TimeUtils.parseTime(timeOfDay);
@@ -77,8 +293,13 @@ public class DealService {
         }
 
         log.info("Querying for active deals at: {} (parsed as {})", timeOfDay, queryTime);
+        return queryTime;
+    }
 
-        List<Restaurant> restaurants = fetchRestaurantData();
+    // Same as above for an already parsed time and the given snapshot, null means current data
+    public DealsListResponse getActiveDeals(LocalTime queryTime, DataSnapshot snapshot) {
+
+        List<Restaurant> restaurants = (snapshot != null) ? snapshot.getRestaurants() : fetchRestaurantData();
         List<DealResponse> activeDeals = new ArrayList<>();
 
         for (Restaurant restaurant : restaurants) {
@@ -87,7 +308,7 @@ public class DealService {
 
             // skip if restaurant is closed
             if (!TimeUtils.isTimeWithinRange(queryTime, restaurantOpen, restaurantClose)) {
-                log.debug("Restaurant {} is closed at {}", restaurant.getName(), timeOfDay);
+                log.debug("Restaurant {} is closed at {}", restaurant.getName(), queryTime);
                 continue;
             }
 
@@ -100,7 +321,7 @@ public class DealService {
             }
         }
 
-        log.info("Found {} active deals at {}", activeDeals.size(), timeOfDay);
+        log.info("Found {} active deals at {}", activeDeals.size(), queryTime);
         return DealsListResponse.builder().deals(activeDeals).build();
     }
 
@@ -134,7 +355,12 @@ public class DealService {
 
     // Finds the time window when most deals are active
     public PeakTimeResponse getPeakTime() {
-        List<Restaurant> restaurants = fetchRestaurantData();
+        return getPeakTime(null);
+    }
+
+    // Same as above but evaluated against the given snapshot, null means current data
+    public PeakTimeResponse getPeakTime(DataSnapshot snapshot) {
+        List<Restaurant> restaurants = (snapshot != null) ? snapshot.getRestaurants() : fetchRestaurantData();
 
         // count deals for each minute of the day
         int[] dealCountByMinute = new int[24 * 60];
@@ -0,0 +1,253 @@
+package com.eatclub.deals.service;
+
+import com.eatclub.deals.model.DataSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Optional directory shared by all replicas so they serve the same data version.
+// Disabled when eatclub.snapshot.shared-dir is empty.
+//
+// Each snapshot is written once to snapshot-<fetchedAt>-<version>.json and the small
+// "latest" file holds the name of the newest one. Changes are detected by that name,
+// not by file modified times which can be too coarse to tell two writes apart.
+//
+// The "refresh.lock" file is a short lease so only one replica fetches from the external
+// API when the shared snapshot expires, the others keep serving it until the new one lands.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SharedSnapshotStore {
+
+    private static final String LATEST_FILE = "latest";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    private static final int MAX_SNAPSHOT_FILES = 5; // older files are deleted after a write
+    private static final String LEASE_FILE = "refresh.lock";
+    private static final long LEASE_TTL_MS = 10000; // a crashed replica blocks refreshes at most this long
+    private static final long WARN_INTERVAL_MS = 60000; // repeated IO problems are only logged once a minute
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${eatclub.snapshot.shared-dir:}")
+    private String sharedDir; // loaded from application.properties
+
+    @Value("${eatclub.snapshot.poll-interval-ms:1000}")
+    private long pollIntervalMs; // how often cache hits look for a new shared snapshot
+
+    // snapshot file name we last read or wrote
+    private volatile String lastSeenName = null;
+    private volatile long lastPollAt = 0;
+    private volatile long lastWarnAt = 0;
+
+    // token written into the lease file while we hold it
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    public boolean isEnabled() {
+        return sharedDir != null && !sharedDir.isBlank();
+    }
+
+    // Cheap check whether another replica published a new snapshot, reads the short
+    // "latest" file at most once per poll interval so cache hits stay off the filesystem
+    public boolean hasChanged() {
+        if (!isEnabled()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastPollAt < pollIntervalMs) {
+            return false;
+        }
+        lastPollAt = now;
+        String latest = readLatestName();
+        return latest != null && !latest.equals(lastSeenName);
+    }
+
+    // Returns the shared snapshot if it changed since we last saw it, otherwise null
+    public DataSnapshot readIfChanged() {
+        if (!isEnabled()) {
+            return null;
+        }
+        String latest = readLatestName();
+        if (latest == null || latest.equals(lastSeenName)) {
+            return null;
+        }
+
+        lastSeenName = latest; // set first so a broken file is not re-read on every request
+        Path file = directory().resolve(latest);
+        try {
+            DataSnapshot snapshot = objectMapper.readValue(file.toFile(), DataSnapshot.class);
+            log.info("Read shared snapshot version {} from {}", snapshot.getVersion(), file);
+            return snapshot;
+        } catch (IOException e) {
+            warnThrottled("Failed to read shared snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    // Publishes a snapshot for the other replicas, failures are logged and ignored
+    public void write(DataSnapshot snapshot) {
+        if (!isEnabled()) {
+            return;
+        }
+        Path dir = directory();
+        String name = SNAPSHOT_PREFIX + snapshot.getFetchedAt() + "-" + snapshot.getVersion() + SNAPSHOT_SUFFIX;
+        try {
+            Files.createDirectories(dir);
+
+            // don't replace a newer snapshot, e.g. when our fetch outlived the lease
+            String latest = readLatestName();
+            if (latest != null && fetchedAtOf(latest) > snapshot.getFetchedAt()) {
+                log.info("Not sharing version {}, directory already has a newer snapshot", snapshot.getVersion());
+                return;
+            }
+
+            writeAtomically(dir.resolve(name), objectMapper.writeValueAsBytes(snapshot));
+            writeAtomically(dir.resolve(LATEST_FILE), name.getBytes(StandardCharsets.UTF_8));
+            lastSeenName = name;
+            log.info("Wrote shared snapshot version {} to {}", snapshot.getVersion(), dir.resolve(name));
+
+            // the check above is not atomic with the rename, if a replica without the lease
+            // renamed an older name over ours in between, put ours back once (best effort)
+            String current = readLatestName();
+            if (current != null && fetchedAtOf(current) < snapshot.getFetchedAt()) {
+                writeAtomically(dir.resolve(LATEST_FILE), name.getBytes(StandardCharsets.UTF_8));
+            }
+
+            deleteOldSnapshots(dir);
+        } catch (IOException e) {
+            warnThrottled("Failed to write shared snapshot to {}: {}", dir, e.getMessage());
+        }
+    }
+
+    // Tries to become the one replica that refreshes from the external API.
+    // Always succeeds when the shared dir is disabled.
+    public boolean tryAcquireRefreshLease() {
+        if (!isEnabled()) {
+            return true;
+        }
+        Path lease = directory().resolve(LEASE_FILE);
+        try {
+            Files.createDirectories(lease.getParent());
+            try {
+                Files.writeString(lease, leaseOwner, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                return true;
+            } catch (FileAlreadyExistsException e) {
+                // holder may have crashed, take over an expired lease
+                if (System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis() < LEASE_TTL_MS) {
+                    return false;
+                }
+                log.info("Refresh lease in {} expired, taking it over", sharedDir);
+                Files.deleteIfExists(lease);
+                Files.writeString(lease, leaseOwner, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                return true;
+            }
+        } catch (FileAlreadyExistsException | NoSuchFileException e) {
+            return false; // another replica won the race for the expired lease
+        } catch (IOException e) {
+            // shared dir is broken, refresh locally rather than never
+            warnThrottled("Failed to acquire refresh lease in {}: {}", sharedDir, e.getMessage());
+            return true;
+        }
+    }
+
+    public void releaseRefreshLease() {
+        if (!isEnabled()) {
+            return;
+        }
+        Path lease = directory().resolve(LEASE_FILE);
+        try {
+            // only delete our own lease, it may have expired and been taken over
+            if (leaseOwner.equals(Files.readString(lease, StandardCharsets.UTF_8))) {
+                Files.delete(lease);
+            }
+        } catch (NoSuchFileException e) {
+            // already gone
+        } catch (IOException e) {
+            warnThrottled("Failed to release refresh lease in {}: {}", sharedDir, e.getMessage());
+        }
+    }
+
+    private String readLatestName() {
+        try {
+            String name = Files.readString(directory().resolve(LATEST_FILE), StandardCharsets.UTF_8).trim();
+            // only accept our own file names, never a path pointing outside the directory
+            return (fetchedAtOf(name) >= 0 && !name.contains("/") && !name.contains("\\")) ? name : null;
+        } catch (NoSuchFileException e) {
+            return null; // nothing shared yet
+        } catch (IOException e) {
+            warnThrottled("Failed to read shared snapshot pointer in {}: {}", sharedDir, e.getMessage());
+            return null;
+        }
+    }
+
+    // a broken mount would otherwise log a warning on every request
+    private void warnThrottled(String message, Object... args) {
+        long now = System.currentTimeMillis();
+        if (now - lastWarnAt >= WARN_INTERVAL_MS) {
+            lastWarnAt = now;
+            log.warn(message, args);
+        } else {
+            log.debug(message, args);
+        }
+    }
+
+    // write to a temp file first so readers never see a half written file
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Path tempFile = Files.createTempFile(target.getParent(), "snapshot-", ".tmp");
+        try {
+            Files.write(tempFile, content);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // keeps the newest few so a replica reading the previous snapshot does not lose it mid-read
+    private void deleteOldSnapshots(Path dir) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            stream.forEach(snapshots::add);
+        }
+        if (snapshots.size() <= MAX_SNAPSHOT_FILES) {
+            return;
+        }
+        snapshots.sort((a, b) -> Long.compare(
+                fetchedAtOf(b.getFileName().toString()), fetchedAtOf(a.getFileName().toString())));
+        for (Path old : snapshots.subList(MAX_SNAPSHOT_FILES, snapshots.size())) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    // snapshot-<fetchedAt>-<version>.json, -1 if the name does not match
+    private static long fetchedAtOf(String name) {
+        if (!name.startsWith(SNAPSHOT_PREFIX)) {
+            return -1;
+        }
+        int end = name.indexOf('-', SNAPSHOT_PREFIX.length());
+        try {
+            return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), end));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private Path directory() {
+        return Paths.get(sharedDir);
+    }
+}
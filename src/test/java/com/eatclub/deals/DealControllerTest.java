@@ -0,0 +1,77 @@
+package com.eatclub.deals;
+
+import com.eatclub.deals.model.RestaurantDataResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestTemplate;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// checks the data version header on the endpoints, external API is mocked
+@SpringBootTest
+@AutoConfigureMockMvc
+class DealControllerTest {
+
+    private static final String VERSION_PATTERN = "\\d+-[0-9a-f]{16}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() {
+        when(restTemplate.getForObject(anyString(), eq(RestaurantDataResponse.class)))
+                .thenReturn(TestData.restaurantData("Test Restaurant"));
+    }
+
+    @Test
+    void testGetActiveDeals_ReturnsVersionHeader() throws Exception {
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "3:00pm"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Data-Version", matchesPattern(VERSION_PATTERN)))
+                .andExpect(jsonPath("$.deals[0].restaurantName").value("Test Restaurant"));
+    }
+
+    @Test
+    void testGetPeakTime_ReturnsVersionHeader() throws Exception {
+        mockMvc.perform(get("/api/deals/peak-time"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Data-Version", matchesPattern(VERSION_PATTERN)));
+    }
+
+    // unknown version gets 412 with the current version so the client can re-pin
+    @Test
+    void testUnknownVersion_Returns412WithCurrentVersion() throws Exception {
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "3:00pm").header("X-Data-Version", "does-not-exist"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string("X-Data-Version", matchesPattern(VERSION_PATTERN)))
+                .andExpect(jsonPath("$.status").value(412));
+
+        mockMvc.perform(get("/api/deals/peak-time").header("X-Data-Min-Version", "does-not-exist"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string("X-Data-Version", matchesPattern(VERSION_PATTERN)));
+    }
+
+    // a bad time is a 400 before any version check or upstream call, like before versioning
+    @Test
+    void testInvalidTime_Returns400BeforeVersionCheck() throws Exception {
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "25:99").header("X-Data-Version", "does-not-exist"))
+                .andExpect(status().isBadRequest());
+
+        verify(restTemplate, never()).getForObject(anyString(), eq(RestaurantDataResponse.class));
+    }
+}
@@ -2,6 +2,7 @@ package com.eatclub.deals;
 
 import com.eatclub.deals.dto.DealsListResponse;
 import com.eatclub.deals.dto.PeakTimeResponse;
+import com.eatclub.deals.model.DataSnapshot;
 import com.eatclub.deals.service.DealService;
 import com.eatclub.deals.util.TimeUtils;
 import org.junit.jupiter.api.Test;
@@ -76,6 +77,19 @@ class DealServiceIntegrationTest {
         assertDoesNotThrow(() -> TimeUtils.parseTime(response.getPeakTimeEnd()));
     }
 
+    // same snapshot should keep the same version and be accepted as exact/min version
+    @Test
+    void testResolveSnapshot_KnownVersion() {
+        DataSnapshot snapshot = dealService.currentSnapshot();
+
+        assertNotNull(snapshot.getVersion());
+        assertEquals(snapshot.getVersion(), dealService.currentSnapshot().getVersion());
+
+        assertEquals(snapshot.getVersion(), dealService.resolveSnapshot(snapshot.getVersion(), null).getVersion());
+        assertEquals(snapshot.getVersion(), dealService.resolveSnapshot(null, snapshot.getVersion()).getVersion());
+        assertNotNull(dealService.resolveSnapshot(null, null));
+    }
+
     @Test
     void testTimeUtils_ParseTime() {
         // 12hr format
@@ -0,0 +1,226 @@
+package com.eatclub.deals;
+
+import com.eatclub.deals.exception.DataVersionUnavailableException;
+import com.eatclub.deals.model.DataSnapshot;
+import com.eatclub.deals.model.RestaurantDataResponse;
+import com.eatclub.deals.service.DealService;
+import com.eatclub.deals.service.SharedSnapshotStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// versioning and shared snapshot behaviour of DealService, external API is mocked
+class DealServiceSnapshotTest {
+
+    @TempDir
+    Path sharedDir;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private RestTemplate restTemplate;
+    private DealService dealService;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        when(restTemplate.getForObject(anyString(), eq(RestaurantDataResponse.class)))
+                .thenReturn(TestData.restaurantData("Original"));
+
+        dealService = newService(newStore());
+    }
+
+    @Test
+    void testVersionIsFetchTimeAndContentHash() {
+        DataSnapshot snapshot = dealService.currentSnapshot();
+
+        assertTrue(snapshot.getVersion().matches("\\d+-[0-9a-f]{16}"), snapshot.getVersion());
+        assertTrue(snapshot.getVersion().startsWith(snapshot.getFetchedAt() + "-"));
+
+        // second call is served from cache
+        assertEquals(snapshot.getVersion(), dealService.currentSnapshot().getVersion());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+    }
+
+    @Test
+    void testAdoptsNewerSharedSnapshot() {
+        DataSnapshot original = dealService.currentSnapshot();
+
+        DataSnapshot updated = snapshot(original.getFetchedAt() + 1, "Updated");
+        newStore().write(updated);
+
+        DataSnapshot current = dealService.currentSnapshot();
+        assertEquals(updated.getVersion(), current.getVersion());
+        assertEquals("Updated", current.getRestaurants().get(0).getName());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+    }
+
+    @Test
+    void testIgnoresOlderSharedSnapshot() throws IOException {
+        DataSnapshot original = dealService.currentSnapshot();
+
+        // another replica published an older snapshot, bypassing the store's own check
+        DataSnapshot older = snapshot(original.getFetchedAt() - 1, "Older");
+        String name = "snapshot-" + older.getFetchedAt() + "-" + older.getVersion() + ".json";
+        Files.write(sharedDir.resolve(name), objectMapper.writeValueAsBytes(older));
+        Files.writeString(sharedDir.resolve("latest"), name);
+
+        assertEquals(original.getVersion(), dealService.currentSnapshot().getVersion());
+    }
+
+    @Test
+    void testOlderMinVersionIsServedWithoutFetch() {
+        DataSnapshot original = dealService.currentSnapshot();
+
+        DataSnapshot resolved = dealService.resolveSnapshot(null, "1-0123456789abcdef");
+
+        assertEquals(original.getVersion(), resolved.getVersion());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+    }
+
+    // old, unknown or made up versions get 412 straight away, never an upstream fetch
+    @Test
+    void testUnavailableVersionDoesNotFetch() {
+        DataSnapshot original = dealService.currentSnapshot();
+        ReflectionTestUtils.setField(dealService, "lastUpstreamFetch", 0L);
+
+        DataVersionUnavailableException ex = assertThrows(DataVersionUnavailableException.class,
+                () -> dealService.resolveSnapshot("does-not-exist", null));
+        assertEquals(original.getVersion(), ex.getCurrentVersion());
+
+        assertThrows(DataVersionUnavailableException.class,
+                () -> dealService.resolveSnapshot(null, "does-not-exist"));
+        assertThrows(DataVersionUnavailableException.class,
+                () -> dealService.resolveSnapshot("1-0123456789abcdef", null));
+        assertThrows(DataVersionUnavailableException.class,
+                () -> dealService.resolveSnapshot(null, "99999999999999-0123456789abcdef"));
+
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+    }
+
+    // client saw newer data on a replica that did not share it, refetch once to catch up
+    @Test
+    void testNewerMinVersionRefetches() {
+        long now = System.currentTimeMillis();
+        installSnapshot(now - 10000, "fedcba9876543210", "Original");
+        ReflectionTestUtils.setField(dealService, "lastUpstreamFetch", 0L);
+        when(restTemplate.getForObject(anyString(), eq(RestaurantDataResponse.class)))
+                .thenReturn(TestData.restaurantData("Updated"));
+
+        DataSnapshot resolved = dealService.resolveSnapshot(null, (now - 5000) + "-0123456789abcdef");
+
+        assertEquals("Updated", resolved.getRestaurants().get(0).getName());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+    }
+
+    @Test
+    void testRefetchOfSameDataKeepsVersion() {
+        String hash = dealService.currentSnapshot().getVersion().split("-")[1];
+        long now = System.currentTimeMillis();
+        DataSnapshot cached = installSnapshot(now - 10000, hash, "Original");
+        ReflectionTestUtils.setField(dealService, "lastUpstreamFetch", 0L);
+
+        // forces a refetch, upstream still returns the same data so the newer version stays unknown
+        assertThrows(DataVersionUnavailableException.class,
+                () -> dealService.resolveSnapshot(null, (now - 5000) + "-0123456789abcdef"));
+
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+        assertEquals(cached.getVersion(), dealService.currentSnapshot().getVersion());
+    }
+
+    // catch-up refetch failing is a 412 with our version, not a 503, since we still have data
+    @Test
+    void testCatchUpDuringOutageKeepsCachedData() {
+        when(restTemplate.getForObject(anyString(), eq(RestaurantDataResponse.class)))
+                .thenReturn(TestData.restaurantData("Original"))
+                .thenThrow(new RestClientException("Connection refused"));
+        dealService.currentSnapshot();
+
+        long now = System.currentTimeMillis();
+        DataSnapshot cached = installSnapshot(now - 10000, "fedcba9876543210", "Original");
+        ReflectionTestUtils.setField(dealService, "lastUpstreamFetch", 0L);
+
+        DataVersionUnavailableException ex = assertThrows(DataVersionUnavailableException.class,
+                () -> dealService.resolveSnapshot(null, (now - 5000) + "-0123456789abcdef"));
+
+        assertEquals(cached.getVersion(), ex.getCurrentVersion());
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+        assertEquals(cached.getVersion(), dealService.currentSnapshot().getVersion());
+    }
+
+    // two replicas on one shared dir, the expired snapshot is fetched once for both
+    @Test
+    void testOnlyOneReplicaFetchesAfterExpiry() {
+        DataSnapshot expired = snapshot(System.currentTimeMillis() - 120000, "Original");
+        newStore().write(expired);
+
+        DealService replicaA = newService(newStore());
+        DealService replicaB = newService(newStore());
+        ReflectionTestUtils.invokeMethod(replicaA, "updateCache", expired);
+        ReflectionTestUtils.invokeMethod(replicaB, "updateCache", expired);
+
+        // replica B gets a request while replica A is fetching
+        List<String> servedByB = new ArrayList<>();
+        when(restTemplate.getForObject(anyString(), eq(RestaurantDataResponse.class))).thenAnswer(invocation -> {
+            servedByB.add(replicaB.currentSnapshot().getVersion());
+            return TestData.restaurantData("Updated");
+        });
+
+        DataSnapshot refreshed = replicaA.currentSnapshot();
+
+        assertEquals(List.of(expired.getVersion()), servedByB);
+        assertEquals(refreshed.getVersion(), replicaB.currentSnapshot().getVersion());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(RestaurantDataResponse.class));
+    }
+
+    @Test
+    void testExactOldVersionIsServedAfterDataChanges() {
+        DataSnapshot original = dealService.currentSnapshot();
+        newStore().write(snapshot(original.getFetchedAt() + 1, "Updated"));
+        assertEquals("Updated", dealService.currentSnapshot().getRestaurants().get(0).getName());
+
+        DataSnapshot pinned = dealService.resolveSnapshot(original.getVersion(), null);
+
+        assertEquals(original.getVersion(), pinned.getVersion());
+        assertEquals("Original", pinned.getRestaurants().get(0).getName());
+    }
+
+    private DealService newService(SharedSnapshotStore store) {
+        DealService service = new DealService(restTemplate, objectMapper, store);
+        ReflectionTestUtils.setField(service, "apiUrl", "http://localhost/challengedata.json");
+        return service;
+    }
+
+    private SharedSnapshotStore newStore() {
+        SharedSnapshotStore store = new SharedSnapshotStore(objectMapper);
+        ReflectionTestUtils.setField(store, "sharedDir", sharedDir.toString());
+        return store;
+    }
+
+    // puts a snapshot fetched at a known time into the cache, so tests do not depend on the clock moving
+    private DataSnapshot installSnapshot(long fetchedAt, String hash, String restaurantName) {
+        DataSnapshot snapshot = new DataSnapshot(fetchedAt + "-" + hash, fetchedAt,
+                TestData.restaurantData(restaurantName).getRestaurants());
+        ReflectionTestUtils.invokeMethod(dealService, "updateCache", snapshot);
+        return snapshot;
+    }
+
+    private static DataSnapshot snapshot(long fetchedAt, String restaurantName) {
+        return new DataSnapshot(fetchedAt + "-fedcba9876543210", fetchedAt,
+                TestData.restaurantData(restaurantName).getRestaurants());
+    }
+}
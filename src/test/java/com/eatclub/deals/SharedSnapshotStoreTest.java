@@ -0,0 +1,162 @@
+package com.eatclub.deals;
+
+import com.eatclub.deals.model.DataSnapshot;
+import com.eatclub.deals.service.SharedSnapshotStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// two stores on the same temp dir act like two replicas
+class SharedSnapshotStoreTest {
+
+    @TempDir
+    Path sharedDir;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void testWriteThenReadFromOtherReplica() {
+        SharedSnapshotStore writer = newStore(sharedDir.toString());
+        SharedSnapshotStore reader = newStore(sharedDir.toString());
+
+        writer.write(snapshot(1000, "aaaaaaaaaaaaaaaa", "Original"));
+
+        assertTrue(reader.hasChanged());
+        DataSnapshot read = reader.readIfChanged();
+        assertNotNull(read);
+        assertEquals("1000-aaaaaaaaaaaaaaaa", read.getVersion());
+        assertEquals(1000, read.getFetchedAt());
+        assertEquals("Original", read.getRestaurants().get(0).getName());
+
+        // already seen, nothing new to read
+        assertFalse(reader.hasChanged());
+        assertNull(reader.readIfChanged());
+        assertFalse(writer.hasChanged());
+    }
+
+    // same fetch time (and same modified time) must still be seen as a change
+    @Test
+    void testSecondWriteWithSameFetchTimeIsSeen() {
+        SharedSnapshotStore writer = newStore(sharedDir.toString());
+        SharedSnapshotStore reader = newStore(sharedDir.toString());
+
+        writer.write(snapshot(1000, "aaaaaaaaaaaaaaaa", "Original"));
+        assertNotNull(reader.readIfChanged());
+
+        writer.write(snapshot(1000, "bbbbbbbbbbbbbbbb", "Updated"));
+        assertTrue(reader.hasChanged());
+        assertEquals("1000-bbbbbbbbbbbbbbbb", reader.readIfChanged().getVersion());
+    }
+
+    @Test
+    void testOlderWriteDoesNotReplaceNewerSnapshot() {
+        SharedSnapshotStore newer = newStore(sharedDir.toString());
+        SharedSnapshotStore older = newStore(sharedDir.toString());
+        SharedSnapshotStore reader = newStore(sharedDir.toString());
+
+        newer.write(snapshot(2000, "bbbbbbbbbbbbbbbb", "Updated"));
+        older.write(snapshot(1000, "aaaaaaaaaaaaaaaa", "Original"));
+
+        assertEquals("2000-bbbbbbbbbbbbbbbb", reader.readIfChanged().getVersion());
+    }
+
+    @Test
+    void testCorruptSnapshotIsIgnored() throws IOException {
+        SharedSnapshotStore reader = newStore(sharedDir.toString());
+        Files.writeString(sharedDir.resolve("snapshot-1000-1000-aaaaaaaaaaaaaaaa.json"), "not json");
+        Files.writeString(sharedDir.resolve("latest"), "snapshot-1000-1000-aaaaaaaaaaaaaaaa.json");
+
+        assertNull(reader.readIfChanged());
+
+        // not retried on every request
+        assertFalse(reader.hasChanged());
+    }
+
+    @Test
+    void testOldSnapshotFilesAreDeleted() throws IOException {
+        SharedSnapshotStore writer = newStore(sharedDir.toString());
+        for (int i = 1; i <= 8; i++) {
+            writer.write(snapshot(1000 + i, "aaaaaaaaaaaaaaaa", "Original"));
+        }
+
+        try (Stream<Path> files = Files.list(sharedDir)) {
+            assertEquals(5, files.filter(file -> file.getFileName().toString().endsWith(".json")).count());
+        }
+        assertEquals("1008-aaaaaaaaaaaaaaaa", newStore(sharedDir.toString()).readIfChanged().getVersion());
+    }
+
+    @Test
+    void testDisabledWithoutSharedDir() {
+        SharedSnapshotStore store = newStore("");
+
+        store.write(snapshot(1000, "aaaaaaaaaaaaaaaa", "Original"));
+
+        assertFalse(store.isEnabled());
+        assertFalse(store.hasChanged());
+        assertNull(store.readIfChanged());
+    }
+
+    @Test
+    void testOnlyOneReplicaGetsTheRefreshLease() {
+        SharedSnapshotStore first = newStore(sharedDir.toString());
+        SharedSnapshotStore second = newStore(sharedDir.toString());
+
+        assertTrue(first.tryAcquireRefreshLease());
+        assertFalse(second.tryAcquireRefreshLease());
+
+        // releasing someone else's lease does nothing
+        second.releaseRefreshLease();
+        assertFalse(second.tryAcquireRefreshLease());
+
+        first.releaseRefreshLease();
+        assertTrue(second.tryAcquireRefreshLease());
+    }
+
+    @Test
+    void testExpiredLeaseIsTakenOver() throws IOException {
+        SharedSnapshotStore crashed = newStore(sharedDir.toString());
+        SharedSnapshotStore other = newStore(sharedDir.toString());
+
+        assertTrue(crashed.tryAcquireRefreshLease());
+        Files.setLastModifiedTime(sharedDir.resolve("refresh.lock"),
+                FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+        assertTrue(other.tryAcquireRefreshLease());
+    }
+
+    @Test
+    void testPollIntervalLimitsPointerReads() {
+        SharedSnapshotStore writer = newStore(sharedDir.toString());
+        SharedSnapshotStore reader = newStore(sharedDir.toString());
+        ReflectionTestUtils.setField(reader, "pollIntervalMs", 60000L);
+
+        assertFalse(reader.hasChanged()); // nothing shared yet, starts the interval
+        writer.write(snapshot(1000, "aaaaaaaaaaaaaaaa", "Original"));
+
+        // not checked again until the interval passes, an explicit read still sees it
+        assertFalse(reader.hasChanged());
+        assertNotNull(reader.readIfChanged());
+    }
+
+    private SharedSnapshotStore newStore(String dir) {
+        SharedSnapshotStore store = new SharedSnapshotStore(objectMapper);
+        ReflectionTestUtils.setField(store, "sharedDir", dir);
+        return store;
+    }
+
+    private static DataSnapshot snapshot(long fetchedAt, String hash, String restaurantName) {
+        return new DataSnapshot(fetchedAt + "-" + hash, fetchedAt,
+                TestData.restaurantData(restaurantName).getRestaurants());
+    }
+}
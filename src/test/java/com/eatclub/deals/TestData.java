@@ -0,0 +1,29 @@
+package com.eatclub.deals;
+
+import com.eatclub.deals.model.Deal;
+import com.eatclub.deals.model.Restaurant;
+import com.eatclub.deals.model.RestaurantDataResponse;
+
+import java.util.List;
+
+// small fixture shared by the tests that mock the external API
+final class TestData {
+
+    private TestData() {
+    }
+
+    // one restaurant open 9am-9pm with a single deal
+    static RestaurantDataResponse restaurantData(String restaurantName) {
+        Deal deal = Deal.builder().objectId("D1").discount("20").dineIn("true").lightning("false").qtyLeft("5").build();
+        Restaurant restaurant = Restaurant.builder()
+                .objectId("R1")
+                .name(restaurantName)
+                .address1("1 Test St")
+                .suburb("Testville")
+                .open("9:00am")
+                .close("9:00pm")
+                .deals(List.of(deal))
+                .build();
+        return new RestaurantDataResponse(List.of(restaurant));
+    }
+}